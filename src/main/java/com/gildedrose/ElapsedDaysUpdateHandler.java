@@ -0,0 +1,36 @@
+package com.gildedrose;
+
+public class ElapsedDaysUpdateHandler {
+
+    /**
+     * Brings the provided Item up to date by applying the end of day updates of several elapsed days at once.
+     *
+     * The end of day rules of SellInUpdateHandler and QualityUpdateHandler are applied day by day,
+     * until the item reaches a state in which the remaining days can no longer affect its quality.
+     * That is the case when a day's update changed neither the sellIn nor the quality (i.e. legendary items),
+     * or when an expired item's quality did not change (its quality is held at 0 or 50, and no further
+     * rule transitions remain once the sell by date has passed). From then on, only the sellIn is caught up.
+     *
+     * @param   item            an item whose properties are to be updated,
+     * @param   elapsedDays     an integer, the number of end of day updates to be applied
+     */
+    public static void updateEndOfDays(Item item, int elapsedDays) {
+        for (int day = 0; day < elapsedDays; day++) {
+            int previousSellIn = item.sellIn;
+            int previousQuality = item.quality;
+
+            SellInUpdateHandler.updateEndOfDay(item);
+            QualityUpdateHandler.updateEndOfDay(item);
+
+            if (item.quality != previousQuality) continue;
+
+            int remainingDays = elapsedDays - day - 1;
+            if (item.sellIn == previousSellIn) {
+                return;
+            } else if (ItemTypeMembership.isExpired(item)) {
+                item.sellIn -= remainingDays;
+                return;
+            }
+        }
+    }
+}
@@ -1,14 +1,46 @@
 package com.gildedrose;
 
+import java.util.Arrays;
+import java.util.function.Predicate;
+
 class GildedRose {
+    /**
+     * In lazy mode, each item holds its state as of the day it was last materialized.
+     * Use getItem or materializeAll to read up to date properties.
+     */
     Item[] items;
+    final InventoryAggregates aggregates = new InventoryAggregates();
+    private final boolean lazy;
+    private int currentDay;
+    private int[] materializedOnDay;
+    private QualityHistory history;
 
     /**
      * The GildedRose constructor. Assigns given array of items to the GildedRose instance variable.
      * @param   items   An array of items
      */
     public GildedRose(Item[] items) {
+        this(items, false);
+    }
+
+    /**
+     * The GildedRose constructor. Assigns given array of items to the GildedRose instance variable.
+     *
+     * In lazy mode, the end of day update only advances the current day.
+     * Items are brought up to date for the elapsed days when they are read through getItem,
+     * which makes the daily update cheap for inventories whose items are rarely read.
+     * The inventory aggregates then reflect the items as of their last materialization.
+     *
+     * @param   items   An array of items
+     * @param   lazy    a boolean, specifies whether the items are to be updated lazily
+     */
+    public GildedRose(Item[] items, boolean lazy) {
         this.items = items;
+        this.lazy = lazy;
+        this.materializedOnDay = new int[items.length];
+        for (Item item : items) {
+            aggregates.onItemAdded(item);
+        }
     }
 
     /**
@@ -17,11 +49,201 @@ class GildedRose {
      *
      * The two function calls accept an Item as parameter and
      * update that item's specific property based on a wide range of criteria.
+     * The resulting changes are then applied to the inventory aggregates.
+     *
+     * In lazy mode, only the current day is advanced. The items are updated once they are read.
+     *
+     * If a quality history is being recorded, the items' state at the end of the day is recorded into it.
      */
     public void updateQuality() {
-        for (Item item : items) {
-            SellInUpdateHandler.updateEndOfDay(item);
-            QualityUpdateHandler.updateEndOfDay(item);
+        currentDay++;
+        if (!lazy) {
+            for (Item item : items) {
+                int previousQuality = item.quality;
+                boolean previouslyExpired = ItemTypeMembership.isExpired(item);
+
+                SellInUpdateHandler.updateEndOfDay(item);
+                QualityUpdateHandler.updateEndOfDay(item);
+
+                aggregates.onItemUpdated(item, previousQuality, previouslyExpired);
+            }
+        }
+
+        if (history != null) {
+            recordHistory();
+        }
+    }
+
+    /**
+     * Starts recording the state of all items into the given quality history after every end of day update,
+     * beginning with the items' state on the current day.
+     * In lazy mode, recording requires every item to be brought up to date each day.
+     * @param   history     an empty QualityHistory the items' state is to be recorded into
+     * @throws  IllegalStateException   if the history already holds records, or a history is already being recorded
+     */
+    public void recordHistoryInto(QualityHistory history) {
+        if (this.history != null) {
+            throw new IllegalStateException("A quality history is already being recorded");
+        }
+        if (!history.isEmpty()) {
+            throw new IllegalStateException("The quality history already holds records");
+        }
+        this.history = history;
+        recordHistory();
+    }
+
+    private void recordHistory() {
+        materializeAll();
+        history.record(currentDay, items);
+    }
+
+    /**
+     * Returns the item at the given position in the GildedRose items array, with its properties up to date.
+     * In lazy mode, the end of day updates of all days elapsed since the item was last read are applied first.
+     * @param   index   an integer, the position of the item within the items array
+     * @return          the Item, with up to date properties
+     */
+    public Item getItem(int index) {
+        Item item = items[index];
+        if (!lazy) return item;
+
+        int elapsedDays = currentDay - materializedOnDay[index];
+        if (elapsedDays == 0) return item;
+
+        int previousQuality = item.quality;
+        boolean previouslyExpired = ItemTypeMembership.isExpired(item);
+
+        ElapsedDaysUpdateHandler.updateEndOfDays(item, elapsedDays);
+        materializedOnDay[index] = currentDay;
+
+        aggregates.onItemUpdated(item, previousQuality, previouslyExpired);
+        return item;
+    }
+
+    /**
+     * Overwrites the properties of the item at the given position in the GildedRose items array.
+     * The item is re-based onto the current day, so that end of day updates only apply from this day onward.
+     * @param   index       an integer, the position of the item within the items array
+     * @param   sellIn      an integer, the item's new sellIn
+     * @param   quality     an integer, the item's new quality
+     */
+    public void setItem(int index, int sellIn, int quality) {
+        Item item = getItem(index);
+        int previousQuality = item.quality;
+        boolean previouslyExpired = ItemTypeMembership.isExpired(item);
+
+        item.sellIn = sellIn;
+        item.quality = quality;
+
+        aggregates.onItemUpdated(item, previousQuality, previouslyExpired);
+    }
+
+    /**
+     * Brings the properties of all items in the GildedRose items array up to date.
+     * In eager mode the items are always up to date, therefore nothing is done.
+     */
+    public void materializeAll() {
+        for (int i = 0; i < items.length; i++) {
+            getItem(i);
+        }
+    }
+
+    /**
+     * @return  an integer, the number of end of day updates performed so far
+     */
+    public int getCurrentDay() {
+        return currentDay;
+    }
+
+    /**
+     * Adds an item to the GildedRose items array and records it within the inventory aggregates.
+     * The item's properties are taken to be as of the current day.
+     * @param   item    An item to be added
+     */
+    public void addItem(Item item) {
+        addItems(item);
+    }
+
+    /**
+     * Adds a batch of items to the GildedRose items array and records them within the inventory aggregates.
+     * The items' properties are taken to be as of the current day.
+     * @param   added   An array of items to be added
+     */
+    public void addItems(Item... added) {
+        int previousLength = items.length;
+        items = Arrays.copyOf(items, previousLength + added.length);
+        System.arraycopy(added, 0, items, previousLength, added.length);
+        materializedOnDay = Arrays.copyOf(materializedOnDay, previousLength + added.length);
+        Arrays.fill(materializedOnDay, previousLength, materializedOnDay.length, currentDay);
+        for (Item item : added) {
+            aggregates.onItemAdded(item);
         }
     }
+
+    /**
+     * Removes an item from the GildedRose items array and from the inventory aggregates.
+     * In lazy mode, the item is brought up to date before it is removed.
+     * @param   item    An item to be removed
+     * @return          a boolean, specifies whether the item was present. TRUE if it was removed, FALSE if it was not found
+     */
+    public boolean removeItem(Item item) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == item) {
+                getItem(i);
+
+                Item[] remaining = new Item[items.length - 1];
+                System.arraycopy(items, 0, remaining, 0, i);
+                System.arraycopy(items, i + 1, remaining, i, items.length - i - 1);
+                items = remaining;
+
+                int[] remainingDays = new int[materializedOnDay.length - 1];
+                System.arraycopy(materializedOnDay, 0, remainingDays, 0, i);
+                System.arraycopy(materializedOnDay, i + 1, remainingDays, i, materializedOnDay.length - i - 1);
+                materializedOnDay = remainingDays;
+
+                aggregates.onItemRemoved(item);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every item matching the given filter from the GildedRose items array and from the inventory aggregates,
+     * copying the remaining items only once.
+     * In lazy mode, every item is brought up to date before it is tested against the filter.
+     * @param   filter  a predicate, TRUE for the items to be removed
+     * @return          an array of the removed items
+     */
+    public Item[] removeItemsIf(Predicate<Item> filter) {
+        Item[] remaining = new Item[items.length];
+        int[] remainingDays = new int[items.length];
+        Item[] removed = new Item[items.length];
+        int remainingCount = 0;
+        int removedCount = 0;
+
+        for (int i = 0; i < items.length; i++) {
+            Item item = getItem(i);
+            if (filter.test(item)) {
+                removed[removedCount++] = item;
+                aggregates.onItemRemoved(item);
+            } else {
+                remaining[remainingCount] = item;
+                remainingDays[remainingCount++] = materializedOnDay[i];
+            }
+        }
+
+        if (removedCount > 0) {
+            items = Arrays.copyOf(remaining, remainingCount);
+            materializedOnDay = Arrays.copyOf(remainingDays, remainingCount);
+        }
+        return Arrays.copyOf(removed, removedCount);
+    }
+
+    /**
+     * @return  the InventoryAggregates, figures kept up to date across all items of the inventory
+     */
+    public InventoryAggregates getAggregates() {
+        return aggregates;
+    }
 }
@@ -0,0 +1,149 @@
+package com.gildedrose;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps inventory wide figures (item counts, total quality, quality distribution and expired counts)
+ * up to date as items are added, removed and updated, so that reading them never requires a scan of all items.
+ *
+ * Every figure is held in a LongAdder, which keeps per-thread partial sums that are only merged on read.
+ * Updates coming from several threads therefore do not contend on a single counter.
+ */
+public class InventoryAggregates {
+    public static final int QUALITY_BAND_WIDTH = 10;
+    public static final int QUALITY_BAND_COUNT = QualityUpdateHandler.MAX_QUALITY / QUALITY_BAND_WIDTH;
+    public static final int ABOVE_MAX_QUALITY_BAND = QUALITY_BAND_COUNT;
+
+    private final LongAdder itemCount = new LongAdder();
+    private final LongAdder totalQuality = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder[] categoryCounts = newAdders(ItemCategory.values().length);
+    private final LongAdder[] qualityBands = newAdders(QUALITY_BAND_COUNT + 1);
+
+    /**
+     * Adds the contribution of a newly stocked item to all figures.
+     * @param   item    an item which has been added to the inventory
+     */
+    public void onItemAdded(Item item) {
+        applyContributionOf(item, 1);
+    }
+
+    /**
+     * Removes the contribution of an item leaving the inventory from all figures.
+     * The item is expected to be in the same state as it was when last recorded.
+     * @param   item    an item which has been removed from the inventory
+     */
+    public void onItemRemoved(Item item) {
+        applyContributionOf(item, -1);
+    }
+
+    /**
+     * Applies the delta of an end of day update to all figures affected by it.
+     * An item's category does not change during an update, therefore only
+     * the quality, quality band and expired figures are touched, and only when they actually changed.
+     * @param   item                an item which has just been updated
+     * @param   previousQuality     the item's quality before the update
+     * @param   previouslyExpired   the item's expired status before the update
+     */
+    public void onItemUpdated(Item item, int previousQuality, boolean previouslyExpired) {
+        if (item.quality != previousQuality) {
+            totalQuality.add(item.quality - previousQuality);
+
+            int previousBand = qualityBandOf(previousQuality);
+            int band = qualityBandOf(item.quality);
+            if (band != previousBand) {
+                qualityBands[previousBand].decrement();
+                qualityBands[band].increment();
+            }
+        }
+
+        boolean expired = ItemTypeMembership.isExpired(item);
+        if (expired != previouslyExpired) {
+            expiredCount.add(expired ? 1 : -1);
+        }
+    }
+
+    /**
+     * @return  a long, the number of items in the inventory
+     */
+    public long itemCount() {
+        return itemCount.sum();
+    }
+
+    /**
+     * @return  a long, the sum of the quality of all items in the inventory
+     */
+    public long totalQuality() {
+        return totalQuality.sum();
+    }
+
+    /**
+     * @return  a long, the number of items in the inventory which are expired
+     */
+    public long expiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * @param   category    a category whose number of items is requested
+     * @return              a long, the number of items in the inventory belonging to the given category
+     */
+    public long itemCount(ItemCategory category) {
+        return categoryCounts[category.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of items whose quality falls within the given band.
+     * Bands are QUALITY_BAND_WIDTH wide and cover qualities 0 to 50, the highest band including 50 itself.
+     * Items above the maximum quality (i.e. legendary items) are counted in ABOVE_MAX_QUALITY_BAND.
+     * @param   band    an index of the band, between 0 and ABOVE_MAX_QUALITY_BAND
+     * @return          a long, the number of items whose quality falls within the band
+     */
+    public long qualityBandCount(int band) {
+        return qualityBands[band].sum();
+    }
+
+    /**
+     * @return  an array of longs, a snapshot of the number of items within each quality band
+     */
+    public long[] qualityHistogram() {
+        long[] histogram = new long[qualityBands.length];
+        for (int band = 0; band < qualityBands.length; band++) {
+            histogram[band] = qualityBands[band].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * Determines which quality band a quality value falls within.
+     * @param   quality     a quality value
+     * @return              an integer, the index of the quality band
+     */
+    protected static int qualityBandOf(int quality) {
+        if (quality > QualityUpdateHandler.MAX_QUALITY) return ABOVE_MAX_QUALITY_BAND;
+        return Math.min(Math.max(quality, 0) / QUALITY_BAND_WIDTH, QUALITY_BAND_COUNT - 1);
+    }
+
+    /**
+     * Adds (sign of 1) or removes (sign of -1) the contribution of the item to every figure.
+     * @param   item    an item whose contribution is to be applied
+     * @param   sign    an integer, 1 when the item is added and -1 when it is removed
+     */
+    private void applyContributionOf(Item item, int sign) {
+        itemCount.add(sign);
+        totalQuality.add((long) sign * item.quality);
+        categoryCounts[ItemCategory.of(item).ordinal()].add(sign);
+        qualityBands[qualityBandOf(item.quality)].add(sign);
+        if (ItemTypeMembership.isExpired(item)) {
+            expiredCount.add(sign);
+        }
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
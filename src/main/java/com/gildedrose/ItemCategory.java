@@ -0,0 +1,24 @@
+package com.gildedrose;
+
+public enum ItemCategory {
+    LEGENDARY,
+    BACKSTAGE_PASS,
+    AGED_BRIE,
+    CONJURED,
+    STANDARD;
+
+    /**
+     * Determines the category an item belongs to.
+     * The checks follow the same precedence as the end of day update rules,
+     * so an item is only ever counted within a single category.
+     * @param   item    an item whose category is to be determined
+     * @return          an ItemCategory, the category the item belongs to
+     */
+    public static ItemCategory of(Item item) {
+        if (ItemTypeMembership.isLegendary(item)) return LEGENDARY;
+        if (ItemTypeMembership.isBackstagePass(item)) return BACKSTAGE_PASS;
+        if (ItemTypeMembership.isAgedBrie(item)) return AGED_BRIE;
+        if (ItemTypeMembership.isConjured(item)) return CONJURED;
+        return STANDARD;
+    }
+}
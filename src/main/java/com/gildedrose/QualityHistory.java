@@ -0,0 +1,232 @@
+package com.gildedrose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the daily sellIn and quality of every item, so that the state of an item on any past day can be reconstructed.
+ *
+ * Under the end of day rules, an item changes by the same amount day after day, until a rule transition
+ * (e.g. expiration, a backstage pass nearing its concert, or quality reaching 0 or 50) changes that amount.
+ * Each item's history therefore only stores the days on which its daily change differs from the previous day's,
+ * along with a keyframe of its full state every KEYFRAME_INTERVAL days.
+ * Looking up an item on a given day starts from the closest preceding keyframe, so it never replays more
+ * than KEYFRAME_INTERVAL days, however long the history is.
+ */
+public class QualityHistory {
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    private final List<Timeline> timelines = new ArrayList<>();
+    private final Map<Item, Timeline> openTimelines = new IdentityHashMap<>();
+    private final Map<String, List<Integer>> idsByName = new HashMap<>();
+    private boolean recordedAnyDay;
+    private int lastRecordedDay;
+
+    /**
+     * Records the state of the given items on the given day.
+     * The first day recorded may be any day, every following record must be for the day after the previous one.
+     * Items recorded for the first time start a new history, and items absent from the record
+     * are taken to have left the inventory, which ends their history.
+     * @param   day     an integer, the day the items' state belongs to
+     * @param   items   an array of items, all items in the inventory on that day
+     * @throws  IllegalArgumentException    if a day has already been recorded and the given day is not the day after it
+     */
+    public void record(int day, Item[] items) {
+        if (!isEmpty() && day != lastRecordedDay + 1) {
+            throw new IllegalArgumentException("Expected day " + (lastRecordedDay + 1) + " to be recorded, got day " + day);
+        }
+        recordedAnyDay = true;
+        lastRecordedDay = day;
+
+        for (Item item : items) {
+            Timeline timeline = openTimelines.get(item);
+            if (timeline == null) {
+                timeline = new Timeline(timelines.size(), item.name, day, item.sellIn, item.quality);
+                timelines.add(timeline);
+                openTimelines.put(item, timeline);
+                idsByName.computeIfAbsent(item.name, name -> new ArrayList<>()).add(timeline.id);
+            } else {
+                timeline.record(day, item.sellIn, item.quality);
+            }
+        }
+
+        openTimelines.values().removeIf(timeline -> timeline.lastDay != day);
+    }
+
+    /**
+     * @return  a boolean, specifies whether no day has been recorded yet. TRUE if none has, FALSE otherwise
+     */
+    public boolean isEmpty() {
+        return !recordedAnyDay;
+    }
+
+    /**
+     * Returns the id under which the given item's current history is recorded.
+     * @param   item    an item currently present in the inventory
+     * @return          an integer, the item's history id, or -1 if the item has not been recorded
+     */
+    public int idOf(Item item) {
+        Timeline timeline = openTimelines.get(item);
+        return timeline == null ? -1 : timeline.id;
+    }
+
+    /**
+     * Reconstructs the state of an item on a past day.
+     * @param   id      an integer, the item's history id
+     * @param   day     an integer, the day whose state is requested
+     * @return          a new Item holding the item's state on that day, or null if the item was not in the inventory on that day
+     */
+    public Item itemOn(int id, int day) {
+        return timelines.get(id).stateOn(day);
+    }
+
+    /**
+     * Returns the ids of the histories of all items recorded under the given name,
+     * including items which have since left the inventory.
+     * @param   name    the name of the items
+     * @return          a list of integers, the history ids of the items in the order they were first recorded
+     */
+    public List<Integer> idsNamed(String name) {
+        return Collections.unmodifiableList(idsByName.getOrDefault(name, Collections.emptyList()));
+    }
+
+    /**
+     * Reconstructs the state of all items in the inventory on a past day.
+     * @param   day     an integer, the day whose state is requested
+     * @return          a map of the history id of every item in the inventory on that day, to a new Item holding its state
+     */
+    public Map<Integer, Item> itemsOn(int day) {
+        Map<Integer, Item> items = new LinkedHashMap<>();
+        for (Timeline timeline : timelines) {
+            Item item = timeline.stateOn(day);
+            if (item != null) {
+                items.put(timeline.id, item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * @return  an integer, the number of daily change transitions stored across all item histories
+     */
+    public int transitionCount() {
+        int count = 0;
+        for (Timeline timeline : timelines) {
+            count += timeline.transitionCount;
+        }
+        return count;
+    }
+
+    /**
+     * The history of a single item, from the day it was first recorded to the day it was last recorded.
+     *
+     * A transition recorded on a day holds the change from the previous day to that day,
+     * which then applies to every following day until the next transition.
+     */
+    private static class Timeline {
+        final int id;
+        final String name;
+        final int firstDay;
+        int lastDay;
+
+        private int lastSellIn;
+        private int lastQuality;
+        private int sellInChange;
+        private int qualityChange;
+
+        private int[] keyframes = new int[2];
+        private int keyframeCount;
+
+        private int[] transitionDays = new int[1];
+        private int[] transitionChanges = new int[2];
+        private int transitionCount;
+
+        Timeline(int id, String name, int day, int sellIn, int quality) {
+            this.id = id;
+            this.name = name;
+            this.firstDay = day;
+            this.lastDay = day;
+            this.lastSellIn = sellIn;
+            this.lastQuality = quality;
+            addKeyframe(sellIn, quality);
+        }
+
+        void record(int day, int sellIn, int quality) {
+            int dailySellInChange = sellIn - lastSellIn;
+            int dailyQualityChange = quality - lastQuality;
+            if (dailySellInChange != sellInChange || dailyQualityChange != qualityChange) {
+                addTransition(day, dailySellInChange, dailyQualityChange);
+            }
+            if ((day - firstDay) % KEYFRAME_INTERVAL == 0) {
+                addKeyframe(sellIn, quality);
+            }
+
+            lastDay = day;
+            lastSellIn = sellIn;
+            lastQuality = quality;
+        }
+
+        /**
+         * Starts from the closest keyframe at or before the requested day,
+         * and applies each daily change in effect between that keyframe and the requested day.
+         */
+        Item stateOn(int day) {
+            if (day < firstDay || day > lastDay) return null;
+
+            int keyframe = (day - firstDay) / KEYFRAME_INTERVAL;
+            int knownDay = firstDay + keyframe * KEYFRAME_INTERVAL;
+            int sellIn = keyframes[2 * keyframe];
+            int quality = keyframes[2 * keyframe + 1];
+
+            int transition = lastTransitionAtOrBefore(knownDay + 1);
+            while (knownDay < day) {
+                int segmentEnd = day;
+                if (transition + 1 < transitionCount) {
+                    segmentEnd = Math.min(day, transitionDays[transition + 1] - 1);
+                }
+                if (transition >= 0) {
+                    sellIn += transitionChanges[2 * transition] * (segmentEnd - knownDay);
+                    quality += transitionChanges[2 * transition + 1] * (segmentEnd - knownDay);
+                }
+                knownDay = segmentEnd;
+                transition++;
+            }
+
+            return new Item(name, sellIn, quality);
+        }
+
+        private int lastTransitionAtOrBefore(int day) {
+            int index = Arrays.binarySearch(transitionDays, 0, transitionCount, day);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        private void addKeyframe(int sellIn, int quality) {
+            if (2 * keyframeCount == keyframes.length) {
+                keyframes = Arrays.copyOf(keyframes, keyframes.length * 2);
+            }
+            keyframes[2 * keyframeCount] = sellIn;
+            keyframes[2 * keyframeCount + 1] = quality;
+            keyframeCount++;
+        }
+
+        private void addTransition(int day, int dailySellInChange, int dailyQualityChange) {
+            if (transitionCount == transitionDays.length) {
+                transitionDays = Arrays.copyOf(transitionDays, transitionDays.length * 2);
+                transitionChanges = Arrays.copyOf(transitionChanges, transitionChanges.length * 2);
+            }
+            transitionDays[transitionCount] = day;
+            transitionChanges[2 * transitionCount] = dailySellInChange;
+            transitionChanges[2 * transitionCount + 1] = dailyQualityChange;
+            transitionCount++;
+
+            sellInChange = dailySellInChange;
+            qualityChange = dailyQualityChange;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.gildedrose;
 
 public class QualityUpdateHandler {
-    private static final int MAX_QUALITY = 50;
+    protected static final int MAX_QUALITY = 50;
     private static final int LEGENDARY_QUALITY = 80;
     private static final int DAILY_STANDARD_QUALITY_CHANGE = 1;
     private static final int CONJURED_ITEM_QUALITY_MULTIPLIER = 2;
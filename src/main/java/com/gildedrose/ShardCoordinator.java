@@ -0,0 +1,504 @@
+package com.gildedrose;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Spreads an inventory over several local ShardWorker processes, each holding a share of the items.
+ *
+ * Every item is given a shard key when it is first added, and is assigned to a shard by ShardProtocol.ownerOf.
+ * Commands are sent to every shard before any reply is read, so that all shards work on a command at the same time,
+ * and items are transferred in batches.
+ * Shards can be added and removed while the coordinator is running, in which case only the items
+ * whose owner changed are moved between shards.
+ *
+ * A shard failing (e.g. its process exiting or its connection breaking) does not affect the other shards.
+ * The failed shard is stopped and no longer receives items, and the failure is reported
+ * within the ShardStats of the command it occurred in and by failedShards. The items the failed shard held are lost,
+ * and the inventory's capacity can be restored through addShard.
+ */
+public class ShardCoordinator implements AutoCloseable {
+    private final Map<Integer, Shard> shards = new LinkedHashMap<>();
+    private final Map<Integer, IOException> failedShards = new LinkedHashMap<>();
+    private int nextShardId;
+    private long nextShardKey;
+    private int day;
+
+    /**
+     * The ShardCoordinator constructor. Starts the given number of worker processes.
+     * @param   shardCount  an integer, the number of shards to start with
+     */
+    public ShardCoordinator(int shardCount) throws IOException {
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                startShard();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives each item a shard key, and sends it to the shard owning it.
+     * Items meant for a shard which fails are sent to the shard owning them among the remaining shards.
+     * @param   items   an array of items to be added to the inventory
+     */
+    public void addItems(Item... items) throws IOException {
+        long[] keys = new long[items.length];
+        for (int i = 0; i < items.length; i++) {
+            keys[i] = nextShardKey++;
+        }
+        addKeyedItems(new ShardProtocol.KeyedItems(keys, items));
+    }
+
+    /**
+     * Performs an end of day update on every shard.
+     * @return  a list of ShardStats, the statistics of every shard following the update
+     */
+    public List<ShardStats> updateQuality() {
+        return advance(1);
+    }
+
+    /**
+     * Performs the given number of end of day updates on every shard.
+     * Each shard reports the day it is on, so a shard which did not apply every update can be told apart.
+     * @param   days    an integer, the number of end of day updates to be performed
+     * @return          a list of ShardStats, the statistics of every shard following the updates, including shards which failed
+     * @throws  IllegalArgumentException    if the number of days is negative
+     */
+    public List<ShardStats> advance(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Cannot advance by a negative number of days: " + days);
+        }
+        day += days;
+        return statsOf(fanOut(shard -> {
+            shard.out.writeByte(ShardProtocol.ADVANCE);
+            shard.out.writeInt(days);
+        }, shard -> ShardProtocol.readStats(shard.in, shard.id)));
+    }
+
+    /**
+     * @return  a list of ShardStats, the current statistics of every shard, including shards which failed
+     */
+    public List<ShardStats> stats() {
+        return statsOf(fanOut(shard -> shard.out.writeByte(ShardProtocol.STATS), shard -> ShardProtocol.readStats(shard.in, shard.id)));
+    }
+
+    /**
+     * Streams the items of every shard to the given consumer, one batch at a time.
+     * @param   consumer    a consumer accepting every item held by the shards
+     * @return              a map of the shards which failed while their items were streamed, whose items may therefore be incomplete
+     */
+    public Map<Integer, IOException> forEachItem(Consumer<Item> consumer) {
+        FanOutResult<Boolean> result = fanOut(shard -> shard.out.writeByte(ShardProtocol.FETCH_ITEMS), shard -> {
+            ShardProtocol.KeyedItems batch;
+            while ((batch = ShardProtocol.readBatch(shard.in)).size() > 0) {
+                Arrays.asList(batch.items).forEach(consumer);
+            }
+            return true;
+        });
+        return result.failures;
+    }
+
+    /**
+     * @return  an integer, the number of end of day updates performed so far
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * @return  a list of integers, the ids of the current shards
+     */
+    public List<Integer> shardIds() {
+        return Collections.unmodifiableList(new ArrayList<>(shards.keySet()));
+    }
+
+    /**
+     * @return  a map of the ids of all shards which have failed so far, to the IOException they failed with
+     */
+    public Map<Integer, IOException> failedShards() {
+        return Collections.unmodifiableMap(failedShards);
+    }
+
+    /**
+     * Starts an additional shard, and moves to it the items it now owns.
+     *
+     * The other shards first send a copy of the items they no longer own, and only drop them once the new shard
+     * acknowledged all of them. Should the new shard fail in the meantime, no item is lost.
+     * @return  an integer, the id of the new shard
+     */
+    public int addShard() throws IOException {
+        Shard added = startShard();
+        List<Shard> sources = new ArrayList<>(shards.values());
+        sources.remove(added);
+        int[] shardIds = routingShardIds();
+
+        IOException addedFailure = null;
+        try {
+            if (day > 0) {
+                added.out.writeByte(ShardProtocol.ADVANCE);
+                added.out.writeInt(day);
+                added.out.flush();
+                ShardProtocol.readStats(added.in, added.id);
+            }
+        } catch (IOException e) {
+            addedFailure = e;
+        }
+
+        int batchesSent = 0;
+        for (Shard source : sources) {
+            try {
+                sendShardIds(source, ShardProtocol.FETCH_ITEMS_NOT_OWNED, shardIds);
+                source.out.flush();
+
+                ShardProtocol.KeyedItems batch;
+                while ((batch = ShardProtocol.readBatch(source.in)).size() > 0) {
+                    if (addedFailure != null) continue;
+                    try {
+                        added.out.writeByte(ShardProtocol.ADD_ITEMS);
+                        ShardProtocol.writeBatch(added.out, batch);
+                        batchesSent++;
+                    } catch (IOException e) {
+                        addedFailure = e;
+                    }
+                }
+            } catch (IOException e) {
+                fail(source, e);
+            }
+        }
+
+        try {
+            if (addedFailure != null) throw addedFailure;
+            added.out.flush();
+            for (int i = 0; i < batchesSent; i++) {
+                added.in.readInt();
+            }
+        } catch (IOException e) {
+            fail(added, e);
+            throw e;
+        }
+
+        fanOut(shard -> sendShardIds(shard, ShardProtocol.DROP_ITEMS_NOT_OWNED, shardIds), shard -> shard.in.readInt());
+        return added.id;
+    }
+
+    /**
+     * Moves the items of the given shard to the remaining shards, and stops the shard.
+     *
+     * The shard keeps its items while they are streamed to the remaining shards, one acknowledged batch at a time,
+     * and is only stopped once all of them have been moved. Should moving them fail, the shard is kept.
+     * @param   shardId     an integer, the id of the shard to be removed
+     */
+    public void removeShard(int shardId) throws IOException {
+        Shard removed = shards.get(shardId);
+        if (removed == null) {
+            throw new IllegalArgumentException("Unknown shard " + shardId);
+        }
+        if (shards.size() == 1) {
+            throw new IllegalStateException("Cannot remove the last shard");
+        }
+
+        removed.retiring = true;
+        IOException rehomingFailure = null;
+        try {
+            removed.out.writeByte(ShardProtocol.FETCH_ITEMS);
+            removed.out.flush();
+
+            ShardProtocol.KeyedItems batch;
+            while ((batch = readBatchFrom(removed)).size() > 0) {
+                if (rehomingFailure != null) continue;
+                try {
+                    addKeyedItems(batch);
+                } catch (IOException e) {
+                    rehomingFailure = e;
+                }
+            }
+        } finally {
+            removed.retiring = false;
+        }
+        if (rehomingFailure != null) throw rehomingFailure;
+
+        shards.remove(shardId);
+        removed.stop();
+    }
+
+    /**
+     * Returns the worker process of the given shard, allowing tests to simulate a shard failing.
+     * @param   shardId     an integer, the id of a current shard
+     * @return              the Process of the shard's worker
+     */
+    Process processOf(int shardId) {
+        return shards.get(shardId).process;
+    }
+
+    /**
+     * Stops all worker processes. Items held by the shards are discarded.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards.values()) {
+            shard.stop();
+        }
+        shards.clear();
+    }
+
+    /**
+     * Sends each item to the shard owning it, and waits for every shard to acknowledge its items.
+     * The items of a shard which fails are sent again, to the shard owning them among the remaining shards.
+     * Since shards ignore items whose shard key they already hold, sending an item again is harmless.
+     * @param   items   the items to be added, along with their shard keys
+     */
+    private void addKeyedItems(ShardProtocol.KeyedItems items) throws IOException {
+        ShardProtocol.KeyedItems pending = items;
+        while (pending.size() > 0) {
+            int[] shardIds = routingShardIds();
+            if (shardIds.length == 0) {
+                throw new IOException("No shard left to hold " + pending.size() + " items");
+            }
+
+            Map<Integer, ShardProtocol.KeyedItems> itemsByShard = partition(pending, shardIds);
+            Map<Shard, Integer> batchesSent = new LinkedHashMap<>();
+            List<ShardProtocol.KeyedItems> failedItems = new ArrayList<>();
+
+            for (Map.Entry<Integer, ShardProtocol.KeyedItems> entry : itemsByShard.entrySet()) {
+                Shard shard = shards.get(entry.getKey());
+                try {
+                    batchesSent.put(shard, sendInBatches(shard, entry.getValue()));
+                } catch (IOException e) {
+                    fail(shard, e);
+                    failedItems.add(entry.getValue());
+                }
+            }
+
+            for (Map.Entry<Shard, Integer> entry : batchesSent.entrySet()) {
+                Shard shard = entry.getKey();
+                try {
+                    for (int i = 0; i < entry.getValue(); i++) {
+                        shard.in.readInt();
+                    }
+                } catch (IOException e) {
+                    fail(shard, e);
+                    failedItems.add(itemsByShard.get(shard.id));
+                }
+            }
+
+            pending = concat(failedItems);
+        }
+    }
+
+    /**
+     * Sends the items to the shard as ADD_ITEMS commands of at most ITEMS_PER_BATCH items each.
+     * @param   shard   the shard to send the items to
+     * @param   items   the items to be sent, along with their shard keys
+     * @return          an integer, the number of commands sent
+     */
+    private int sendInBatches(Shard shard, ShardProtocol.KeyedItems items) throws IOException {
+        int batches = 0;
+        for (int from = 0; from < items.size(); from += ShardProtocol.ITEMS_PER_BATCH) {
+            int to = Math.min(from + ShardProtocol.ITEMS_PER_BATCH, items.size());
+            shard.out.writeByte(ShardProtocol.ADD_ITEMS);
+            ShardProtocol.writeBatch(shard.out, new ShardProtocol.KeyedItems(
+                Arrays.copyOfRange(items.keys, from, to), Arrays.copyOfRange(items.items, from, to)));
+            batches++;
+        }
+        shard.out.flush();
+        return batches;
+    }
+
+    private ShardProtocol.KeyedItems readBatchFrom(Shard shard) throws IOException {
+        try {
+            return ShardProtocol.readBatch(shard.in);
+        } catch (IOException e) {
+            fail(shard, e);
+            throw e;
+        }
+    }
+
+    private void sendShardIds(Shard shard, byte command, int[] shardIds) throws IOException {
+        shard.out.writeByte(command);
+        shard.out.writeInt(shard.id);
+        shard.out.writeInt(shardIds.length);
+        for (int shardId : shardIds) {
+            shard.out.writeInt(shardId);
+        }
+    }
+
+    /**
+     * Sends a command to every shard, then reads the reply of every shard the command was sent to.
+     * A shard failing while its command is sent or its reply is read is stopped, and does not prevent
+     * the other shards' replies from being read, so that their streams remain ready for the next command.
+     * @param   command     a function sending the command to a shard
+     * @param   reply       a function reading a shard's reply
+     * @return              the FanOutResult, the replies of the shards which succeeded and the failures of those which did not
+     */
+    private <T> FanOutResult<T> fanOut(ShardCommand command, ShardReply<T> reply) {
+        FanOutResult<T> result = new FanOutResult<>();
+        List<Shard> sent = new ArrayList<>();
+
+        for (Shard shard : new ArrayList<>(shards.values())) {
+            try {
+                command.send(shard);
+                shard.out.flush();
+                sent.add(shard);
+            } catch (IOException e) {
+                fail(shard, e);
+                result.failures.put(shard.id, e);
+            }
+        }
+
+        for (Shard shard : sent) {
+            try {
+                result.replies.put(shard.id, reply.read(shard));
+            } catch (IOException e) {
+                fail(shard, e);
+                result.failures.put(shard.id, e);
+            }
+        }
+        return result;
+    }
+
+    private List<ShardStats> statsOf(FanOutResult<ShardStats> result) {
+        List<ShardStats> stats = new ArrayList<>(result.replies.values());
+        for (Map.Entry<Integer, IOException> failure : result.failures.entrySet()) {
+            stats.add(ShardStats.failed(failure.getKey(), failure.getValue()));
+        }
+        return stats;
+    }
+
+    private void fail(Shard shard, IOException failure) {
+        shards.remove(shard.id);
+        failedShards.put(shard.id, failure);
+        shard.stop();
+    }
+
+    private Map<Integer, ShardProtocol.KeyedItems> partition(ShardProtocol.KeyedItems items, int[] shardIds) {
+        Map<Integer, List<Integer>> positionsByShard = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            int owner = ShardProtocol.ownerOf(items.keys[i], shardIds);
+            positionsByShard.computeIfAbsent(owner, shardId -> new ArrayList<>()).add(i);
+        }
+
+        Map<Integer, ShardProtocol.KeyedItems> itemsByShard = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : positionsByShard.entrySet()) {
+            List<Integer> positions = entry.getValue();
+            long[] keys = new long[positions.size()];
+            Item[] shardItems = new Item[positions.size()];
+            for (int i = 0; i < positions.size(); i++) {
+                keys[i] = items.keys[positions.get(i)];
+                shardItems[i] = items.items[positions.get(i)];
+            }
+            itemsByShard.put(entry.getKey(), new ShardProtocol.KeyedItems(keys, shardItems));
+        }
+        return itemsByShard;
+    }
+
+    private static ShardProtocol.KeyedItems concat(List<ShardProtocol.KeyedItems> batches) {
+        int size = 0;
+        for (ShardProtocol.KeyedItems batch : batches) {
+            size += batch.size();
+        }
+
+        long[] keys = new long[size];
+        Item[] items = new Item[size];
+        int position = 0;
+        for (ShardProtocol.KeyedItems batch : batches) {
+            System.arraycopy(batch.keys, 0, keys, position, batch.size());
+            System.arraycopy(batch.items, 0, items, position, batch.size());
+            position += batch.size();
+        }
+        return new ShardProtocol.KeyedItems(keys, items);
+    }
+
+    /**
+     * @return  an array of integers, the ids of the shards new items may be assigned to
+     */
+    private int[] routingShardIds() {
+        return shards.values().stream().filter(shard -> !shard.retiring).mapToInt(shard -> shard.id).toArray();
+    }
+
+    /**
+     * Launches a ShardWorker process using the current JVM and class path, and connects to it over the loopback interface.
+     * @return  the Shard started
+     */
+    private Shard startShard() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ShardWorker.class.getName())
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String port = output.readLine();
+            if (port == null) {
+                throw new IOException("Shard worker exited before listening");
+            }
+
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(port.trim()));
+            socket.setTcpNoDelay(true);
+            Shard shard = new Shard(nextShardId++, process, socket);
+            shards.put(shard.id, shard);
+            return shard;
+        } catch (IOException | RuntimeException e) {
+            process.destroy();
+            throw e;
+        }
+    }
+
+    private interface ShardCommand {
+        void send(Shard shard) throws IOException;
+    }
+
+    private interface ShardReply<T> {
+        T read(Shard shard) throws IOException;
+    }
+
+    private static class FanOutResult<T> {
+        final Map<Integer, T> replies = new LinkedHashMap<>();
+        final Map<Integer, IOException> failures = new LinkedHashMap<>();
+    }
+
+    private static class Shard {
+        final int id;
+        final Process process;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        boolean retiring;
+
+        Shard(int id, Process process, Socket socket) throws IOException {
+            this.id = id;
+            this.process = process;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void stop() {
+            try {
+                out.writeByte(ShardProtocol.SHUTDOWN);
+                out.flush();
+                socket.close();
+            } catch (IOException e) {
+                // The worker is destroyed below regardless
+            }
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.gildedrose;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The messages exchanged between the ShardCoordinator and its ShardWorker processes,
+ * and the assignment of items to shards.
+ *
+ * Every command is a single byte followed by its arguments, and is answered in the order it was sent,
+ * so the coordinator may send a command to all shards before reading any of the replies.
+ * ADD_ITEMS, ADVANCE, STATS and DROP_ITEMS_NOT_OWNED are answered by a single reply.
+ * FETCH_ITEMS and FETCH_ITEMS_NOT_OWNED are answered by a stream of batches of at most ITEMS_PER_BATCH items,
+ * ended by an empty batch, so that neither side has to hold a whole shard's items in a single message.
+ * SHUTDOWN is not answered; the worker exits once it has flushed the replies to the commands before it.
+ *
+ * Items are transferred along with their shard key, a number assigned by the coordinator when the item is first added.
+ */
+public class ShardProtocol {
+    public static final byte ADD_ITEMS = 1;
+    public static final byte ADVANCE = 2;
+    public static final byte STATS = 3;
+    public static final byte FETCH_ITEMS = 4;
+    public static final byte FETCH_ITEMS_NOT_OWNED = 5;
+    public static final byte DROP_ITEMS_NOT_OWNED = 6;
+    public static final byte SHUTDOWN = 7;
+
+    public static final int ITEMS_PER_BATCH = 1024;
+
+    /**
+     * Determines which shard owns an item, using rendezvous hashing of the item's shard key against every shard id.
+     * Since an item's weight for a given shard does not depend on the other shards,
+     * adding a shard only moves the items the new shard now owns,
+     * and removing a shard only moves the items it owned.
+     * @param   shardKey    a long, the item's shard key
+     * @param   shardIds    an array of integers, the ids of all current shards
+     * @return              an integer, the id of the shard owning the item
+     */
+    public static int ownerOf(long shardKey, int[] shardIds) {
+        int owner = shardIds[0];
+        long highestWeight = Long.MIN_VALUE;
+        for (int shardId : shardIds) {
+            long weight = mix(mix(shardKey) ^ shardId);
+            if (weight > highestWeight) {
+                highestWeight = weight;
+                owner = shardId;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Writes a batch of items with their shard keys, preceded by the number of items.
+     * @param   out     a stream to write the items to
+     * @param   batch   the items to be written
+     */
+    public static void writeBatch(DataOutputStream out, KeyedItems batch) throws IOException {
+        out.writeInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            out.writeLong(batch.keys[i]);
+            out.writeUTF(batch.items[i].name);
+            out.writeInt(batch.items[i].sellIn);
+            out.writeInt(batch.items[i].quality);
+        }
+    }
+
+    /**
+     * Writes the end of a stream of batches.
+     * @param   out     a stream the batches were written to
+     */
+    public static void writeEndOfBatches(DataOutputStream out) throws IOException {
+        out.writeInt(0);
+    }
+
+    /**
+     * Reads a batch of items written by writeBatch. An empty batch marks the end of a stream of batches.
+     * @param   in      a stream to read the items from
+     * @return          the items read, along with their shard keys
+     */
+    public static KeyedItems readBatch(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        long[] keys = new long[count];
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = in.readLong();
+            items[i] = new Item(in.readUTF(), in.readInt(), in.readInt());
+        }
+        return new KeyedItems(keys, items);
+    }
+
+    /**
+     * Writes a shard's statistics.
+     * @param   out         a stream to write the statistics to
+     * @param   app         the shard's inventory
+     */
+    public static void writeStats(DataOutputStream out, GildedRose app) throws IOException {
+        out.writeInt(app.getCurrentDay());
+        out.writeLong(app.getAggregates().itemCount());
+        out.writeLong(app.getAggregates().totalQuality());
+        out.writeLong(app.getAggregates().expiredCount());
+    }
+
+    /**
+     * Reads a shard's statistics written by writeStats.
+     * @param   in          a stream to read the statistics from
+     * @param   shardId     an integer, the id of the shard the statistics belong to
+     * @return              the ShardStats read
+     */
+    public static ShardStats readStats(DataInputStream in, int shardId) throws IOException {
+        return new ShardStats(shardId, in.readInt(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Items along with their shard keys, the key of each item being at the same position as the item.
+     */
+    public static class KeyedItems {
+
+        public final long[] keys;
+
+        public final Item[] items;
+
+        public KeyedItems(long[] keys, Item[] items) {
+            this.keys = keys;
+            this.items = items;
+        }
+
+        public int size() {
+            return items.length;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.gildedrose;
+
+import java.io.IOException;
+
+public class ShardStats {
+
+    public final int shardId;
+
+    public final int day;
+
+    public final long itemCount;
+
+    public final long totalQuality;
+
+    public final long expiredCount;
+
+    public final IOException failure;
+
+    public ShardStats(int shardId, int day, long itemCount, long totalQuality, long expiredCount) {
+        this.shardId = shardId;
+        this.day = day;
+        this.itemCount = itemCount;
+        this.totalQuality = totalQuality;
+        this.expiredCount = expiredCount;
+        this.failure = null;
+    }
+
+    private ShardStats(int shardId, IOException failure) {
+        this.shardId = shardId;
+        this.day = -1;
+        this.itemCount = 0;
+        this.totalQuality = 0;
+        this.expiredCount = 0;
+        this.failure = failure;
+    }
+
+    /**
+     * Creates the statistics of a shard which failed while executing a command, and has since been stopped.
+     * @param   shardId     an integer, the id of the failed shard
+     * @param   failure     the IOException the shard failed with
+     * @return              the ShardStats of the failed shard
+     */
+    public static ShardStats failed(int shardId, IOException failure) {
+        return new ShardStats(shardId, failure);
+    }
+
+    /**
+     * @return  a boolean, specifies whether the shard failed. TRUE if it did, FALSE if it did not
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    @Override
+    public String toString() {
+        if (isFailed()) {
+            return "shard " + this.shardId + ", failed: " + this.failure.getMessage();
+        }
+        return "shard " + this.shardId + ", day " + this.day + ", " + this.itemCount + ", " + this.totalQuality + ", " + this.expiredCount;
+    }
+}
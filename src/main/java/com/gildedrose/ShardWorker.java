@@ -0,0 +1,199 @@
+package com.gildedrose;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * A worker process holding a single shard of the inventory, driven by a ShardCoordinator.
+ *
+ * On start, the worker listens on a loopback port and prints that port on its standard output.
+ * It then serves the commands of a single coordinator connection, and exits once the connection is closed
+ * or a SHUTDOWN command is received.
+ */
+public class ShardWorker {
+    private final GildedRose app = new GildedRose(new Item[0]);
+    private final Map<Long, Item> itemsByKey = new HashMap<>();
+    private final List<Item> pendingItems = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            System.out.println(server.getLocalPort());
+            System.out.flush();
+
+            try (Socket socket = server.accept()) {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                new ShardWorker().serve(in, out);
+            }
+        }
+    }
+
+    /**
+     * Reads and executes commands until a SHUTDOWN command is received or the stream ends.
+     * The replies are flushed once no further pipelined command is already waiting to be read.
+     * @param   in      a stream to read commands from
+     * @param   out     a stream to write replies to
+     */
+    protected void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            byte command;
+            try {
+                command = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+
+            if (command == ShardProtocol.SHUTDOWN) {
+                out.flush();
+                return;
+            }
+            execute(command, in, out);
+
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Executes a single command and writes its reply.
+     * Items received by consecutive ADD_ITEMS commands are only added to the inventory once another command arrives,
+     * so that a transfer made of many batches copies the inventory's items once rather than once per batch.
+     * @param   command     a byte, one of the commands defined within ShardProtocol
+     * @param   in          a stream to read the command's arguments from
+     * @param   out         a stream to write the reply to
+     */
+    private void execute(byte command, DataInputStream in, DataOutputStream out) throws IOException {
+        if (command != ShardProtocol.ADD_ITEMS) {
+            applyPendingItems();
+        }
+
+        switch (command) {
+            case ShardProtocol.ADD_ITEMS:
+                receiveItems(ShardProtocol.readBatch(in));
+                out.writeInt(itemsByKey.size());
+                break;
+            case ShardProtocol.ADVANCE:
+                int days = in.readInt();
+                for (int day = 0; day < days; day++) {
+                    app.updateQuality();
+                }
+                ShardProtocol.writeStats(out, app);
+                break;
+            case ShardProtocol.STATS:
+                ShardProtocol.writeStats(out, app);
+                break;
+            case ShardProtocol.FETCH_ITEMS:
+                writeItemsMatching(out, shardKey -> true);
+                break;
+            case ShardProtocol.FETCH_ITEMS_NOT_OWNED:
+                writeItemsMatching(out, notOwnedFilter(in));
+                break;
+            case ShardProtocol.DROP_ITEMS_NOT_OWNED:
+                out.writeInt(dropItemsMatching(notOwnedFilter(in)));
+                break;
+            default:
+                throw new IOException("Unknown shard command " + command);
+        }
+    }
+
+    /**
+     * Takes in the items whose shard key is not already held by this shard.
+     * Receiving the same items again therefore has no effect, which allows the coordinator to retry a transfer.
+     * @param   batch   the items received, along with their shard keys
+     */
+    private void receiveItems(ShardProtocol.KeyedItems batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (itemsByKey.putIfAbsent(batch.keys[i], batch.items[i]) == null) {
+                pendingItems.add(batch.items[i]);
+            }
+        }
+    }
+
+    private void applyPendingItems() {
+        if (pendingItems.isEmpty()) return;
+        app.addItems(pendingItems.toArray(new Item[0]));
+        pendingItems.clear();
+    }
+
+    /**
+     * Streams the items whose shard key matches the given filter, in batches of at most ITEMS_PER_BATCH items.
+     * @param   out     a stream to write the items to
+     * @param   filter  a predicate, TRUE for the shard keys of the items to be written
+     */
+    private void writeItemsMatching(DataOutputStream out, LongPredicate filter) throws IOException {
+        long[] keys = new long[ShardProtocol.ITEMS_PER_BATCH];
+        Item[] items = new Item[ShardProtocol.ITEMS_PER_BATCH];
+        int count = 0;
+
+        for (Map.Entry<Long, Item> entry : itemsByKey.entrySet()) {
+            if (!filter.test(entry.getKey())) continue;
+
+            keys[count] = entry.getKey();
+            items[count++] = entry.getValue();
+            if (count == ShardProtocol.ITEMS_PER_BATCH) {
+                ShardProtocol.writeBatch(out, new ShardProtocol.KeyedItems(keys, items));
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            ShardProtocol.writeBatch(out, new ShardProtocol.KeyedItems(Arrays.copyOf(keys, count), Arrays.copyOf(items, count)));
+        }
+        ShardProtocol.writeEndOfBatches(out);
+    }
+
+    /**
+     * Removes the items whose shard key matches the given filter.
+     * @param   filter  a predicate, TRUE for the shard keys of the items to be removed
+     * @return          an integer, the number of items removed
+     */
+    private int dropItemsMatching(LongPredicate filter) {
+        Set<Item> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        Iterator<Map.Entry<Long, Item>> entries = itemsByKey.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Item> entry = entries.next();
+            if (filter.test(entry.getKey())) {
+                dropped.add(entry.getValue());
+                entries.remove();
+            }
+        }
+        if (!dropped.isEmpty()) {
+            app.removeItemsIf(dropped::contains);
+        }
+        return dropped.size();
+    }
+
+    /**
+     * Reads this shard's id and the ids of all current shards,
+     * and returns a filter matching the shard keys of the items which are no longer owned by this shard.
+     * Given no shard ids, none of the items are owned by this shard.
+     * @param   in      a stream to read the shard ids from
+     * @return          a predicate, TRUE for the shard keys of the items not owned by this shard
+     */
+    private LongPredicate notOwnedFilter(DataInputStream in) throws IOException {
+        int ownShardId = in.readInt();
+        int[] shardIds = new int[in.readInt()];
+        for (int i = 0; i < shardIds.length; i++) {
+            shardIds[i] = in.readInt();
+        }
+        return shardKey -> shardIds.length == 0 || ShardProtocol.ownerOf(shardKey, shardIds) != ownShardId;
+    }
+}
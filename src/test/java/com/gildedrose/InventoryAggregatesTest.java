@@ -0,0 +1,98 @@
+package com.gildedrose;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryAggregatesTest {
+
+    /**
+     * Given a freshly created inventory,
+     * the aggregates should reflect the items it was created with
+     */
+    @Test
+    void testAggregatesOfInitialItems() {
+        Item[] items = new Item[] {
+            new Item("Elixir of the Mongoose", 5, 7),
+            new Item("Aged Brie", 2, 0),
+            new Item("Sulfuras, Hand of Ragnaros", -1, 80),
+            new Item("Conjured Mana Cake", 3, 50)
+        };
+        GildedRose app = new GildedRose(items);
+        InventoryAggregates aggregates = app.getAggregates();
+
+        assertEquals(4, aggregates.itemCount());
+        assertEquals(137, aggregates.totalQuality());
+        assertEquals(1, aggregates.expiredCount());
+        assertEquals(1, aggregates.itemCount(ItemCategory.STANDARD));
+        assertEquals(1, aggregates.itemCount(ItemCategory.AGED_BRIE));
+        assertEquals(1, aggregates.itemCount(ItemCategory.LEGENDARY));
+        assertEquals(1, aggregates.itemCount(ItemCategory.CONJURED));
+        assertEquals(0, aggregates.itemCount(ItemCategory.BACKSTAGE_PASS));
+        assertArrayEquals(new long[] {2, 0, 0, 0, 1, 1}, aggregates.qualityHistogram());
+    }
+
+    /**
+     * Given an inventory updated over a number of days,
+     * the aggregates should always match a full scan of the items
+     */
+    @Test
+    void testAggregatesFollowEndOfDayUpdates() {
+        Item[] items = new Item[] {
+            new Item("+5 Dexterity Vest", 10, 20),
+            new Item("Aged Brie", 2, 0),
+            new Item("Elixir of the Mongoose", 5, 7),
+            new Item("Sulfuras, Hand of Ragnaros", 0, 80),
+            new Item("Backstage passes to a TAFKAL80ETC concert", 15, 20),
+            new Item("Backstage passes to a TAFKAL80ETC concert", 5, 49),
+            new Item("Conjured Mana Cake", 3, 6)
+        };
+        GildedRose app = new GildedRose(items);
+
+        for (int day = 0; day < 30; day++) {
+            app.updateQuality();
+            assertMatchesFullScan(app);
+        }
+    }
+
+    /**
+     * Given items added to and removed from the inventory,
+     * the aggregates should include only the items currently in the inventory
+     */
+    @Test
+    void testAggregatesFollowItemInsertsAndRemovals() {
+        GildedRose app = new GildedRose(new Item[] { new Item("Aged Brie", 2, 10) });
+        Item pass = new Item("Backstage passes to a TAFKAL80ETC concert", 0, 30);
+
+        app.addItem(pass);
+        app.updateQuality();
+        assertEquals(2, app.items.length);
+        assertEquals(1, app.getAggregates().itemCount(ItemCategory.BACKSTAGE_PASS));
+        assertMatchesFullScan(app);
+
+        assertTrue(app.removeItem(pass));
+        assertFalse(app.removeItem(pass));
+        assertEquals(1, app.items.length);
+        assertEquals(0, app.getAggregates().itemCount(ItemCategory.BACKSTAGE_PASS));
+        assertMatchesFullScan(app);
+    }
+
+    private static void assertMatchesFullScan(GildedRose app) {
+        InventoryAggregates aggregates = app.getAggregates();
+        long totalQuality = 0;
+        long expired = 0;
+        long[] histogram = new long[InventoryAggregates.QUALITY_BAND_COUNT + 1];
+        for (Item item : app.items) {
+            totalQuality += item.quality;
+            if (ItemTypeMembership.isExpired(item)) expired++;
+            histogram[InventoryAggregates.qualityBandOf(item.quality)]++;
+        }
+        assertEquals(app.items.length, aggregates.itemCount());
+        assertEquals(totalQuality, aggregates.totalQuality());
+        assertEquals(expired, aggregates.expiredCount());
+        assertArrayEquals(histogram, aggregates.qualityHistogram());
+    }
+}
@@ -0,0 +1,130 @@
+package com.gildedrose;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyGildedRoseTest {
+
+    /**
+     * Given a lazy inventory whose items cross rule transitions (expiration, backstage pass thresholds and concert,
+     * quality reaching 0 or 50) between reads,
+     * each item read should have the same properties as in an eagerly updated inventory
+     */
+    @Test
+    void testLazyReadsMatchEagerUpdates() {
+        Item[] items = new Item[] {
+            new Item("Elixir of the Mongoose", 3, 9),
+            new Item("Conjured Mana Cake", 2, 20),
+            new Item("Aged Brie", 1, 44),
+            new Item("Backstage passes to a TAFKAL80ETC concert", 12, 30),
+            new Item("Sulfuras, Hand of Ragnaros", -1, 80)
+        };
+        Item[] copies = new Item[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copies[i] = new Item(items[i].name, items[i].sellIn, items[i].quality);
+        }
+        GildedRose eager = new GildedRose(items);
+        GildedRose lazy = new GildedRose(copies, true);
+
+        for (int day = 1; day <= 40; day++) {
+            eager.updateQuality();
+            lazy.updateQuality();
+
+            for (int i = 0; i < eager.items.length; i++) {
+                if ((day + i) % 7 != 0) continue;
+                assertEquals(eager.items[i].toString(), lazy.getItem(i).toString());
+            }
+        }
+
+        lazy.materializeAll();
+        for (int i = 0; i < eager.items.length; i++) {
+            assertEquals(eager.items[i].toString(), lazy.items[i].toString());
+        }
+        assertEquals(eager.getAggregates().totalQuality(), lazy.getAggregates().totalQuality());
+        assertEquals(eager.getAggregates().expiredCount(), lazy.getAggregates().expiredCount());
+    }
+
+    /**
+     * Given a lazy inventory whose item is overwritten,
+     * the end of day updates should only apply to the item from the day it was overwritten
+     */
+    @Test
+    void testWriteRebasesItem() {
+        GildedRose app = new GildedRose(new Item[] { new Item("Elixir of the Mongoose", 10, 20) }, true);
+        app.updateQuality();
+        app.updateQuality();
+        app.setItem(0, 5, 30);
+
+        assertEquals(5, app.getItem(0).sellIn);
+        assertEquals(30, app.getItem(0).quality);
+
+        for (int i = 0; i < 7; i++) {
+            app.updateQuality();
+        }
+        assertEquals(-2, app.getItem(0).sellIn);
+        assertEquals(21, app.getItem(0).quality);
+        assertEquals(9, app.getCurrentDay());
+    }
+
+    /**
+     * Given a lazy inventory, the daily update should not touch the items until they are read
+     */
+    @Test
+    void testUpdateDefersItemChanges() {
+        GildedRose app = new GildedRose(new Item[] { new Item("Aged Brie", 2, 0) }, true);
+        for (int i = 0; i < 100; i++) {
+            app.updateQuality();
+        }
+        assertEquals(2, app.items[0].sellIn);
+        assertEquals(0, app.items[0].quality);
+
+        assertEquals(-98, app.getItem(0).sellIn);
+        assertEquals(50, app.getItem(0).quality);
+    }
+
+    /**
+     * Given a lazy inventory whose item is removed days after it was last read,
+     * the removed item should hold its up to date properties, and no longer count towards the aggregates
+     */
+    @Test
+    void testRemovedItemIsBroughtUpToDate() {
+        Item cake = new Item("Conjured Mana Cake", 2, 20);
+        GildedRose app = new GildedRose(new Item[] { cake, new Item("Aged Brie", 5, 10) }, true);
+        for (int i = 0; i < 4; i++) {
+            app.updateQuality();
+        }
+
+        assertTrue(app.removeItem(cake));
+        assertEquals(-2, cake.sellIn);
+        assertEquals(8, cake.quality);
+
+        app.materializeAll();
+        assertEquals(1, app.getAggregates().itemCount());
+        assertEquals(14, app.getAggregates().totalQuality());
+        assertEquals(0, app.getAggregates().expiredCount());
+    }
+
+    /**
+     * Given a lazy inventory whose items expire between reads,
+     * filtering items out by their expiry should see their up to date properties
+     */
+    @Test
+    void testFilteredRemovalSeesElapsedDays() {
+        GildedRose app = new GildedRose(new Item[] {
+            new Item("Elixir of the Mongoose", 1, 12),
+            new Item("Aged Brie", 9, 3)
+        }, true);
+        for (int i = 0; i < 5; i++) {
+            app.updateQuality();
+        }
+
+        Item[] removed = app.removeItemsIf(ItemTypeMembership::isExpired);
+        assertEquals(1, removed.length);
+        assertEquals("Elixir of the Mongoose, -4, 3", removed[0].toString());
+        assertEquals(1, app.items.length);
+        assertEquals(0, app.getAggregates().expiredCount());
+        assertEquals(8, app.getAggregates().totalQuality());
+    }
+}
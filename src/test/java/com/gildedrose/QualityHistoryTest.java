@@ -0,0 +1,188 @@
+package com.gildedrose;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QualityHistoryTest {
+
+    private static List<String> describe(Iterable<Item> items) {
+        List<String> descriptions = new ArrayList<>();
+        for (Item item : items) {
+            descriptions.add(item.toString());
+        }
+        return descriptions;
+    }
+
+    /**
+     * Given items whose daily change shifts exactly on a keyframe day (day 32 and day 64) or on the day right after one,
+     * the reconstructed state of every item on every past day should match a full daily dump,
+     * while each item only stores the days its daily change shifted
+     */
+    @Test
+    void testHistoryMatchesDailyDumps() {
+        GildedRose app = new GildedRose(new Item[] {
+            new Item("Elixir of the Mongoose", 31, 50),
+            new Item("Aged Brie", 32, 0),
+            new Item("Backstage passes to a TAFKAL80ETC concert", 63, 0),
+            new Item("Sulfuras, Hand of Ragnaros", -1, 80)
+        });
+        QualityHistory history = new QualityHistory();
+        app.recordHistoryInto(history);
+
+        List<List<String>> dumps = new ArrayList<>();
+        dumps.add(describe(Arrays.asList(app.items)));
+        for (int day = 1; day <= 100; day++) {
+            app.updateQuality();
+            dumps.add(describe(Arrays.asList(app.items)));
+        }
+
+        for (int day = 0; day <= 100; day++) {
+            assertEquals(dumps.get(day), describe(history.itemsOn(day).values()));
+        }
+        int elixirId = history.idOf(app.items[0]);
+        int passId = history.idOf(app.items[2]);
+        assertEquals("Elixir of the Mongoose, 0, 19", history.itemOn(elixirId, 31).toString());
+        assertEquals("Elixir of the Mongoose, -1, 17", history.itemOn(elixirId, 32).toString());
+        assertEquals("Backstage passes to a TAFKAL80ETC concert, 0, 50", history.itemOn(passId, 63).toString());
+        assertEquals("Backstage passes to a TAFKAL80ETC concert, -1, 0", history.itemOn(passId, 64).toString());
+        assertEquals(11, history.transitionCount());
+        assertNull(history.itemOn(elixirId, 101));
+    }
+
+    /**
+     * Given an item overwritten by hand partway through a recorded history,
+     * the write should be stored as a single shift of the item's daily change,
+     * and the item's state should be reconstructed correctly on either side of it, across the following keyframe
+     */
+    @Test
+    void testManualWriteIsRecordedAsDelta() {
+        GildedRose app = new GildedRose(new Item[] { new Item("+5 Dexterity Vest", 20, 30) });
+        QualityHistory history = new QualityHistory();
+        app.recordHistoryInto(history);
+
+        for (int day = 1; day <= 10; day++) {
+            app.updateQuality();
+        }
+        app.setItem(0, 40, 45);
+        for (int day = 11; day <= 40; day++) {
+            app.updateQuality();
+        }
+
+        assertEquals("+5 Dexterity Vest, 10, 20", history.itemOn(0, 10).toString());
+        assertEquals("+5 Dexterity Vest, 39, 44", history.itemOn(0, 11).toString());
+        assertEquals("+5 Dexterity Vest, 38, 43", history.itemOn(0, 12).toString());
+        assertEquals("+5 Dexterity Vest, 10, 15", history.itemOn(0, 40).toString());
+        assertEquals(app.items[0].toString(), history.itemOn(0, 40).toString());
+        assertEquals(3, history.transitionCount());
+    }
+
+    /**
+     * Given items added to and removed from a recorded inventory,
+     * each item should only be part of the history for the days it was in the inventory,
+     * and a removed item should remain reachable by its name
+     */
+    @Test
+    void testHistoryFollowsItemInsertsAndRemovals() {
+        Item brie = new Item("Aged Brie", 2, 0);
+        GildedRose app = new GildedRose(new Item[] { brie });
+        QualityHistory history = new QualityHistory();
+        app.recordHistoryInto(history);
+
+        app.updateQuality();
+        Item vest = new Item("+5 Dexterity Vest", 10, 20);
+        app.addItem(vest);
+        app.updateQuality();
+        app.updateQuality();
+        app.removeItem(brie);
+        app.updateQuality();
+
+        assertEquals(1, history.itemsOn(1).size());
+        assertEquals(2, history.itemsOn(3).size());
+        Map<Integer, Item> lastDay = history.itemsOn(4);
+        assertEquals(1, lastDay.size());
+        assertEquals("+5 Dexterity Vest, 7, 17", lastDay.get(history.idOf(vest)).toString());
+
+        assertEquals(-1, history.idOf(brie));
+        List<Integer> brieIds = history.idsNamed("Aged Brie");
+        assertEquals(1, brieIds.size());
+        assertEquals("Aged Brie, -1, 4", history.itemOn(brieIds.get(0), 3).toString());
+        assertEquals("Aged Brie, -1, 4", history.itemsOn(3).get(brieIds.get(0)).toString());
+        assertNull(history.itemOn(brieIds.get(0), 4));
+        assertTrue(history.idsNamed("Conjured Mana Cake").isEmpty());
+    }
+
+    /**
+     * Given a lazy inventory whose items cross rule transitions between days,
+     * the recorded history should match the history of an eagerly updated inventory
+     */
+    @Test
+    void testHistoryOfLazyInventory() {
+        GildedRose eager = new GildedRose(new Item[] {
+            new Item("Backstage passes to a TAFKAL80ETC concert", 6, 40),
+            new Item("Conjured Mana Cake", 1, 9)
+        });
+        GildedRose lazy = new GildedRose(new Item[] {
+            new Item("Backstage passes to a TAFKAL80ETC concert", 6, 40),
+            new Item("Conjured Mana Cake", 1, 9)
+        }, true);
+        QualityHistory eagerHistory = new QualityHistory();
+        QualityHistory lazyHistory = new QualityHistory();
+        eager.recordHistoryInto(eagerHistory);
+        lazy.recordHistoryInto(lazyHistory);
+
+        for (int day = 1; day <= 40; day++) {
+            eager.updateQuality();
+            lazy.updateQuality();
+        }
+        for (int day = 0; day <= 40; day++) {
+            assertEquals(describe(eagerHistory.itemsOn(day).values()), describe(lazyHistory.itemsOn(day).values()));
+        }
+    }
+
+    /**
+     * Given a history with recorded days, recording any day other than the day after the last recorded one
+     * should be rejected, leaving the history unchanged
+     */
+    @Test
+    void testRecordRejectsNonConsecutiveDays() {
+        Item[] items = new Item[] { new Item("Elixir of the Mongoose", 5, 10) };
+        QualityHistory history = new QualityHistory();
+        history.record(7, items);
+
+        assertThrows(IllegalArgumentException.class, () -> history.record(7, items));
+        assertThrows(IllegalArgumentException.class, () -> history.record(9, items));
+
+        items[0].sellIn = 4;
+        items[0].quality = 9;
+        history.record(8, items);
+        assertEquals("Elixir of the Mongoose, 4, 9", history.itemOn(0, 8).toString());
+    }
+
+    /**
+     * Given a history which already holds records,
+     * attaching it to an inventory, whether the same one again or another one, should be refused
+     */
+    @Test
+    void testRecordHistoryIntoRefusesUsedHistory() {
+        GildedRose app = new GildedRose(new Item[] { new Item("Aged Brie", 3, 10) });
+        QualityHistory history = new QualityHistory();
+        app.recordHistoryInto(history);
+        app.updateQuality();
+
+        assertThrows(IllegalStateException.class, () -> app.recordHistoryInto(history));
+        assertThrows(IllegalStateException.class, () -> app.recordHistoryInto(new QualityHistory()));
+
+        GildedRose other = new GildedRose(new Item[] { new Item("Aged Brie", 3, 10) });
+        assertThrows(IllegalStateException.class, () -> other.recordHistoryInto(history));
+        assertEquals("Aged Brie, 2, 11", history.itemOn(0, 1).toString());
+    }
+}
@@ -0,0 +1,184 @@
+package com.gildedrose;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCoordinatorTest {
+
+    private static List<String> itemsOf(ShardCoordinator coordinator) {
+        List<String> descriptions = new ArrayList<>();
+        assertTrue(coordinator.forEachItem(item -> descriptions.add(item.toString())).isEmpty());
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static List<String> itemsOf(GildedRose app) {
+        List<String> descriptions = new ArrayList<>();
+        for (Item item : app.items) {
+            descriptions.add(item.toString());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    /**
+     * Given many items sharing the same few names spread over several worker processes,
+     * following end of day updates,
+     * the items should be spread over every shard, and their state should match a single GildedRose holding all items
+     */
+    @Test
+    void testShardedUpdatesMatchSingleInventory() throws IOException {
+        List<Item> items = new ArrayList<>();
+        List<Item> copies = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            items.add(new Item("Aged Brie", i % 4 - 1, 48));
+            items.add(new Item("Sulfuras, Hand of Ragnaros", i % 3, 80));
+            items.add(new Item("Backstage passes to a TAFKAL80ETC concert", i % 12, 40));
+            copies.add(new Item("Aged Brie", i % 4 - 1, 48));
+            copies.add(new Item("Sulfuras, Hand of Ragnaros", i % 3, 80));
+            copies.add(new Item("Backstage passes to a TAFKAL80ETC concert", i % 12, 40));
+        }
+        GildedRose app = new GildedRose(copies.toArray(new Item[0]));
+
+        try (ShardCoordinator coordinator = new ShardCoordinator(3)) {
+            coordinator.addItems(items.toArray(new Item[0]));
+
+            coordinator.updateQuality();
+            List<ShardStats> stats = coordinator.advance(4);
+            for (int i = 0; i < 5; i++) {
+                app.updateQuality();
+            }
+
+            long itemCount = 0;
+            long totalQuality = 0;
+            long expiredCount = 0;
+            for (ShardStats shardStats : stats) {
+                assertFalse(shardStats.isFailed());
+                assertEquals(5, shardStats.day);
+                assertTrue(shardStats.itemCount > 0);
+                itemCount += shardStats.itemCount;
+                totalQuality += shardStats.totalQuality;
+                expiredCount += shardStats.expiredCount;
+            }
+            assertEquals(3, stats.size());
+            assertEquals(app.getAggregates().itemCount(), itemCount);
+            assertEquals(app.getAggregates().totalQuality(), totalQuality);
+            assertEquals(app.getAggregates().expiredCount(), expiredCount);
+            assertEquals(itemsOf(app), itemsOf(coordinator));
+        }
+    }
+
+    /**
+     * Given a shard whose worker process dies,
+     * following an end of day update,
+     * the failure should be reported for that shard only, while the other shards keep advancing and accepting items
+     */
+    @Test
+    void testFailedShardIsIsolated() throws IOException, InterruptedException {
+        try (ShardCoordinator coordinator = new ShardCoordinator(3)) {
+            for (int i = 0; i < 30; i++) {
+                coordinator.addItems(new Item("Elixir of the Mongoose", 10, 20));
+            }
+            int failedShardId = coordinator.shardIds().get(1);
+            coordinator.processOf(failedShardId).destroyForcibly().waitFor();
+
+            List<ShardStats> stats = coordinator.updateQuality();
+            assertEquals(3, stats.size());
+            for (ShardStats shardStats : stats) {
+                assertEquals(shardStats.shardId == failedShardId, shardStats.isFailed());
+                if (!shardStats.isFailed()) {
+                    assertEquals(coordinator.getDay(), shardStats.day);
+                }
+            }
+            assertTrue(coordinator.failedShards().containsKey(failedShardId));
+            assertFalse(coordinator.shardIds().contains(failedShardId));
+
+            coordinator.addItems(new Item("Aged Brie", 5, 10));
+            List<String> items = itemsOf(coordinator);
+            assertTrue(items.contains("Aged Brie, 5, 10"));
+            assertTrue(items.contains("Elixir of the Mongoose, 9, 19"));
+            for (ShardStats shardStats : coordinator.advance(2)) {
+                assertFalse(shardStats.isFailed());
+                assertEquals(3, shardStats.day);
+            }
+        }
+    }
+
+    /**
+     * Given a shard added to and another removed from a running coordinator,
+     * no item should be lost or duplicated, even when several batches of items are moved,
+     * and the added shard should continue from the coordinator's day
+     */
+    @Test
+    void testRebalancingKeepsAllItems() throws IOException {
+        try (ShardCoordinator coordinator = new ShardCoordinator(2)) {
+            Item[] items = new Item[2500];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new Item("Conjured Mana Cake", i % 40, 30);
+            }
+            coordinator.addItems(items);
+            coordinator.updateQuality();
+            List<String> before = itemsOf(coordinator);
+
+            int added = coordinator.addShard();
+            assertEquals(before, itemsOf(coordinator));
+            for (ShardStats stats : coordinator.stats()) {
+                assertTrue(stats.itemCount > 0);
+                assertEquals(1, stats.day);
+            }
+
+            coordinator.removeShard(coordinator.shardIds().get(0));
+            assertEquals(2, coordinator.shardIds().size());
+            assertTrue(coordinator.shardIds().contains(added));
+            assertEquals(before, itemsOf(coordinator));
+
+            long itemCount = 0;
+            for (ShardStats stats : coordinator.updateQuality()) {
+                assertEquals(2, stats.day);
+                itemCount += stats.itemCount;
+            }
+            assertEquals(2500, itemCount);
+        }
+    }
+
+    /**
+     * Given a request to go back in time, the coordinator should refuse it without touching any shard
+     */
+    @Test
+    void testAdvanceRejectsNegativeDays() throws IOException {
+        try (ShardCoordinator coordinator = new ShardCoordinator(1)) {
+            coordinator.addItems(new Item("Aged Brie", 3, 10));
+            coordinator.advance(2);
+
+            assertThrows(IllegalArgumentException.class, () -> coordinator.advance(-1));
+            assertEquals(2, coordinator.getDay());
+            assertEquals(List.of("Aged Brie, 1, 12"), itemsOf(coordinator));
+        }
+    }
+
+    /**
+     * Given an item's shard key, the owning shard should only change when the added shard takes it over
+     */
+    @Test
+    void testOwnershipMovesOnlyToAddedShard() {
+        int[] shardIds = new int[] {0, 1, 2};
+        int[] grownShardIds = new int[] {0, 1, 2, 3};
+        int moved = 0;
+        for (long shardKey = 0; shardKey < 1000; shardKey++) {
+            int owner = ShardProtocol.ownerOf(shardKey, shardIds);
+            int grownOwner = ShardProtocol.ownerOf(shardKey, grownShardIds);
+            assertTrue(grownOwner == owner || grownOwner == 3);
+            if (grownOwner == 3) moved++;
+        }
+        assertTrue(moved > 150 && moved < 350);
+    }
+}